@@ -0,0 +1,138 @@
+package com.example.fetanverify;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.FirebaseDatabase;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the signed-in user's recent transactions into the {@link VerificationCache} and drops
+ * old ones, so the first verification after the phone has been idle is answered locally.
+ */
+public class CacheWarmupWorker extends Worker {
+    static final String KEY_UID = "uid";
+    static final long PREFETCH_WINDOW_MS = TimeUnit.DAYS.toMillis(7);
+    static final long RETENTION_MS = TimeUnit.DAYS.toMillis(30);
+    static final int PREFETCH_LIMIT = 500;
+    static final int MAX_RUN_ATTEMPTS = 3;
+
+    static final String WORK_UNMETERED = "cache_warmup_unmetered";
+    static final String WORK_CHARGING = "cache_warmup_charging";
+    static final String WORK_STARTUP = "cache_warmup_startup";
+
+    private static final long SYNC_INTERVAL_HOURS = 12;
+
+    /** Builds the data source for a user, or returns null if that user is no longer signed in. */
+    interface SourceFactory {
+        VerificationDataSource forUser(String uid);
+    }
+
+    private final SourceFactory sourceFactory;
+
+    public CacheWarmupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        this(context, params, CacheWarmupWorker::firebaseSourceFor);
+    }
+
+    CacheWarmupWorker(@NonNull Context context, @NonNull WorkerParameters params,
+                      SourceFactory sourceFactory) {
+        super(context, params);
+        this.sourceFactory = sourceFactory;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String uid = getInputData().getString(KEY_UID);
+        if (uid == null) {
+            return Result.failure();
+        }
+
+        VerificationDataSource source = sourceFactory.forUser(uid);
+        if (source == null) {
+            // The user has signed out or switched accounts since this work was scheduled. Drop
+            // their cached transactions and stop syncing; MainActivity reschedules on next sign-in.
+            new VerificationCache(getApplicationContext(), uid).clear();
+            cancel(getApplicationContext());
+            return Result.success();
+        }
+
+        VerificationCache cache = new VerificationCache(getApplicationContext(), uid);
+        long now = System.currentTimeMillis();
+        try {
+            List<VerificationCache.Entry> entries = source.fetchRecent(now - PREFETCH_WINDOW_MS, PREFETCH_LIMIT);
+            cache.putAll(entries);
+        } catch (Exception e) {
+            return getRunAttemptCount() + 1 < MAX_RUN_ATTEMPTS ? Result.retry() : Result.failure();
+        } finally {
+            cache.compact(now - RETENTION_MS);
+        }
+        return Result.success();
+    }
+
+    private static VerificationDataSource firebaseSourceFor(String uid) {
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null || !uid.equals(currentUser.getUid())) {
+            return null;
+        }
+        return new FirebaseVerificationDataSource(FirebaseDatabase.getInstance().getReference("users")
+                .child(uid).child("sms_messages"));
+    }
+
+    /**
+     * Schedules the periodic sync and kicks off a one-off warm-up for the given user.
+     * WorkManager constraints can only be combined with AND, so "unmetered or charging" is
+     * expressed as two periodic requests; writes to the cache are idempotent.
+     */
+    public static void schedule(Context context, String uid) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        Data input = new Data.Builder().putString(KEY_UID, uid).build();
+
+        Constraints unmetered = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .build();
+        Constraints charging = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresCharging(true)
+                .build();
+
+        workManager.enqueueUniquePeriodicWork(WORK_UNMETERED, ExistingPeriodicWorkPolicy.UPDATE,
+                periodicRequest(input, unmetered));
+        workManager.enqueueUniquePeriodicWork(WORK_CHARGING, ExistingPeriodicWorkPolicy.UPDATE,
+                periodicRequest(input, charging));
+
+        OneTimeWorkRequest startup = new OneTimeWorkRequest.Builder(CacheWarmupWorker.class)
+                .setInputData(input)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .build();
+        workManager.enqueueUniqueWork(WORK_STARTUP, ExistingWorkPolicy.KEEP, startup);
+    }
+
+    static void cancel(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(WORK_UNMETERED);
+        workManager.cancelUniqueWork(WORK_CHARGING);
+        workManager.cancelUniqueWork(WORK_STARTUP);
+    }
+
+    private static PeriodicWorkRequest periodicRequest(Data input, Constraints constraints) {
+        return new PeriodicWorkRequest.Builder(CacheWarmupWorker.class, SYNC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.fetanverify;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class FirebaseVerificationDataSource implements VerificationDataSource {
+    private static final long FETCH_TIMEOUT_SECONDS = 30;
+
+    private final DatabaseReference databaseReference;
+
+    public FirebaseVerificationDataSource(DatabaseReference databaseReference) {
+        this.databaseReference = databaseReference;
+    }
+
+    @Override
+    public Lookup lookup(String transactionId, LookupCallback callback) {
+        Query query = databaseReference.orderByChild("transactionId").equalTo(transactionId);
+        ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                    String sender = snapshot.child("sender").getValue(String.class);
+                    String amount = snapshot.child("amount").getValue(String.class);
+                    Long timestamp = snapshot.child("timestamp").getValue(Long.class);
+
+                    if (sender != null && timestamp != null) {
+                        callback.onResult(new VerificationCache.Entry(transactionId, sender,
+                                amount != null ? amount : "N/A", timestamp));
+                        return;
+                    }
+                }
+                callback.onResult(null);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                callback.onError(databaseError.getMessage(), isRetryable(databaseError));
+            }
+        };
+        query.addListenerForSingleValueEvent(listener);
+        return () -> query.removeEventListener(listener);
+    }
+
+    @Override
+    public List<VerificationCache.Entry> fetchRecent(long sinceMillis, int limit) throws Exception {
+        DataSnapshot dataSnapshot = Tasks.await(databaseReference.orderByChild("timestamp")
+                .startAt(sinceMillis).limitToLast(limit).get(), FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        List<VerificationCache.Entry> entries = new ArrayList<>();
+        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+            String transactionId = snapshot.child("transactionId").getValue(String.class);
+            String sender = snapshot.child("sender").getValue(String.class);
+            String amount = snapshot.child("amount").getValue(String.class);
+            Long timestamp = snapshot.child("timestamp").getValue(Long.class);
+
+            if (transactionId != null && sender != null && timestamp != null) {
+                entries.add(new VerificationCache.Entry(transactionId, sender,
+                        amount != null ? amount : "N/A", timestamp));
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isRetryable(DatabaseError error) {
+        switch (error.getCode()) {
+            case DatabaseError.DISCONNECTED:
+            case DatabaseError.NETWORK_ERROR:
+            case DatabaseError.UNAVAILABLE:
+            case DatabaseError.MAX_RETRIES:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import android.content.Intent;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.text.TextUtils;
 import android.view.View;
@@ -18,12 +20,8 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.MultiFormatReader;
@@ -45,11 +43,12 @@ public class MainActivity extends AppCompatActivity {
     private MaterialCardView resultCard;
     private TextView resultTextView;
     private CircularProgressIndicator loadingIndicator;
-    private DatabaseReference databaseReference;
     private ArrayList<HistoryItem> historyList;
     private FirebaseAuth mAuth;
     private ActivityResultLauncher<Intent> scanLauncher;
     private ActivityResultLauncher<Intent> imageLauncher;
+    private TransactionVerifier transactionVerifier;
+    private TransactionVerifier.Request pendingVerification;
     private static final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy hh:mm a", Locale.getDefault());
 
     @Override
@@ -67,6 +66,10 @@ public class MainActivity extends AppCompatActivity {
 
         initializeViews();
         setupDatabase();
+        if (savedInstanceState == null) {
+            // Rotation and other configuration changes recreate the activity; the work is already queued
+            CacheWarmupWorker.schedule(this, currentUser.getUid());
+        }
         setupActivityLaunchers();
         setupClickListeners();
     }
@@ -88,9 +91,20 @@ public class MainActivity extends AppCompatActivity {
     private void setupDatabase() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser != null) {
-            databaseReference = FirebaseDatabase.getInstance().getReference("users")
+            DatabaseReference databaseReference = FirebaseDatabase.getInstance().getReference("users")
                     .child(currentUser.getUid()).child("sms_messages");
+            transactionVerifier = new TransactionVerifier(new FirebaseVerificationDataSource(databaseReference),
+                    new VerificationCache(this, currentUser.getUid()), new Handler(Looper.getMainLooper()));
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (pendingVerification != null) {
+            pendingVerification.cancel();
+            pendingVerification = null;
         }
+        super.onDestroy();
     }
 
     private void setupActivityLaunchers() {
@@ -184,52 +198,67 @@ public class MainActivity extends AppCompatActivity {
     private void verifyTransaction(String transactionId) {
         showLoading(true);
         hideResult();
-        
-        Query query = databaseReference.orderByChild("transactionId").equalTo(transactionId);
-        query.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                showLoading(false);
-                
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    String sender = snapshot.child("sender").getValue(String.class);
-                    String amount = snapshot.child("amount").getValue(String.class);
-                    Long timestampLong = snapshot.child("timestamp").getValue(Long.class);
-                    
-                    if (sender != null && timestampLong != null) {
-                        String timestamp = dateFormat.format(new Date(timestampLong));
-                        String amountText = amount != null ? amount : "N/A";
-                        
-                        HistoryItem item = new HistoryItem(transactionId, "Verified", timestamp, amountText);
-                        historyList.add(0, item);
-                        
-                        showToast("✓ Verification Successful");
-                        showResult("✓ Transaction Verified\n\n" +
-                                "Transaction ID: " + transactionId + "\n" +
-                                "Sender: " + sender + "\n" +
-                                "Amount: " + amountText + "\n" +
-                                "Timestamp: " + timestamp, true);
-                        return;
-                    }
+
+        if (pendingVerification != null) {
+            pendingVerification.cancel();
+        }
+        pendingVerification = transactionVerifier.verify(transactionId, this::showVerificationResult);
+    }
+
+    private void showVerificationResult(TransactionVerifier.Result result) {
+        pendingVerification = null;
+        showLoading(false);
+
+        String transactionId = result.getTransactionId();
+        switch (result.getSource()) {
+            case REMOTE:
+            case CACHED:
+                if (result.isFound()) {
+                    String timestamp = dateFormat.format(new Date(result.getTimestamp()));
+                    boolean cached = result.getSource() == TransactionVerifier.Source.CACHED;
+
+                    HistoryItem item = new HistoryItem(transactionId,
+                            cached ? "Verified (cached)" : "Verified", timestamp, result.getAmount());
+                    historyList.add(0, item);
+
+                    showToast("✓ Verification Successful");
+                    showResult("✓ Transaction Verified\n\n" +
+                            "Transaction ID: " + transactionId + "\n" +
+                            "Sender: " + result.getSender() + "\n" +
+                            "Amount: " + result.getAmount() + "\n" +
+                            "Timestamp: " + timestamp + "\n" +
+                            "Source: " + (cached
+                                    ? "Offline cache (" + result.getFallbackReason() + ")"
+                                    : "Live database (" + result.getElapsedMs() + " ms)"), true);
+                    return;
                 }
-                
+
                 String timestamp = dateFormat.format(new Date());
                 HistoryItem item = new HistoryItem(transactionId, "Failed", timestamp, "N/A");
                 historyList.add(0, item);
-                
+
                 showToast("✗ Verification Failed");
                 showResult("✗ Transaction Not Found\n\n" +
                         "Transaction ID: " + transactionId + "\n" +
                         "Status: Invalid or not found in database", false);
-            }
+                break;
+
+            case TIMED_OUT:
+                historyList.add(0, new HistoryItem(transactionId, "Timed out",
+                        dateFormat.format(new Date()), "N/A"));
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                showLoading(false);
+                showToast("Database did not respond");
+                showResult("⚠ Verification Timed Out\n\n" +
+                        "Transaction ID: " + transactionId + "\n" +
+                        "Status: No response after " + result.getAttempts() + " attempts. " +
+                        "Check your connection and try again", false);
+                break;
+
+            case ERROR:
                 showToast("Database error occurred");
-                showResult("Error: " + databaseError.getMessage(), false);
-            }
-        });
+                showResult("Error: " + result.getErrorMessage(), false);
+                break;
+        }
     }
 
     private void showLoading(boolean show) {
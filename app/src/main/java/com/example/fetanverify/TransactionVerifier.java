@@ -0,0 +1,278 @@
+package com.example.fetanverify;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import java.util.Random;
+
+/**
+ * Looks up a transaction in the data source with a deadline on every attempt, a bounded number of
+ * retries with jittered backoff, and a hedge to the local cache once the latency budget is spent.
+ * Everything, including the callback, runs on the main thread, which the handler must belong to.
+ *
+ * <p>Every verification answers within {@link #TOTAL_DEADLINE_MS}, however the attempts go. A retry
+ * adds a new listener on the same Firebase connection rather than opening a new one, so retrying
+ * only helps when the SDK reconnects or the server recovers within that budget.
+ */
+public class TransactionVerifier {
+    // Answer from the cache if the database has not replied within this budget
+    static final long HEDGE_DELAY_MS = 1500;
+    static final long ATTEMPT_DEADLINE_MS = 4000;
+    // Give up with TIMED_OUT after this long, even if attempts remain
+    static final long TOTAL_DEADLINE_MS = 10_000;
+    static final int MAX_ATTEMPTS = 3;
+    // Backoff before retry n is drawn from [cap / 2, cap] with cap = BASE_BACKOFF_MS << (n - 1)
+    static final long BASE_BACKOFF_MS = 500;
+
+    public enum Source {
+        REMOTE,
+        CACHED,
+        TIMED_OUT,
+        ERROR
+    }
+
+    public interface Callback {
+        void onResult(Result result);
+    }
+
+    private final VerificationDataSource dataSource;
+    private final VerificationCache cache;
+    private final Handler handler;
+    private final Random random = new Random();
+
+    public TransactionVerifier(VerificationDataSource dataSource, VerificationCache cache, Handler handler) {
+        this.dataSource = dataSource;
+        this.cache = cache;
+        this.handler = handler;
+    }
+
+    public Request verify(String transactionId, Callback callback) {
+        Request request = new Request(transactionId, callback);
+        request.start();
+        return request;
+    }
+
+    long backoffDelay(int attempt) {
+        long cap = BASE_BACKOFF_MS << (attempt - 1);
+        long half = cap / 2;
+        return half + (long) (random.nextDouble() * (cap - half));
+    }
+
+    /**
+     * Longest a verification can take: every attempt hits its deadline after the longest backoff,
+     * unless the total deadline cuts that short.
+     */
+    static long worstCaseMs() {
+        long total = MAX_ATTEMPTS * ATTEMPT_DEADLINE_MS;
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            total += BASE_BACKOFF_MS << (attempt - 1);
+        }
+        return Math.min(total, TOTAL_DEADLINE_MS);
+    }
+
+    public final class Request {
+        private final String transactionId;
+        private final Callback callback;
+        private final long startTime = SystemClock.elapsedRealtime();
+        private final Runnable hedgeTask = this::onHedgeDeadline;
+        private final Runnable deadlineTask = this::onAttemptDeadline;
+        private final Runnable retryTask = this::startAttempt;
+        private final Runnable totalDeadlineTask = this::onTotalDeadline;
+        private int attempt;
+        private boolean finished;
+        private boolean awaitingAnswer;
+        private VerificationDataSource.Lookup lookup;
+
+        private Request(String transactionId, Callback callback) {
+            this.transactionId = transactionId;
+            this.callback = callback;
+        }
+
+        public void cancel() {
+            finish();
+        }
+
+        private void start() {
+            handler.postDelayed(hedgeTask, HEDGE_DELAY_MS);
+            handler.postDelayed(totalDeadlineTask, TOTAL_DEADLINE_MS);
+            startAttempt();
+        }
+
+        private void startAttempt() {
+            if (finished) {
+                return;
+            }
+            attempt++;
+            int thisAttempt = attempt;
+            awaitingAnswer = true;
+            VerificationDataSource.Lookup started = dataSource.lookup(transactionId, new VerificationDataSource.LookupCallback() {
+                @Override
+                public void onResult(VerificationCache.Entry entry) {
+                    if (!isCurrent(thisAttempt)) {
+                        return;
+                    }
+                    detach();
+                    if (entry != null) {
+                        cache.put(transactionId, entry.getSender(), entry.getAmount(), entry.getTimestamp());
+                    }
+                    deliver(Source.REMOTE, entry, null, null);
+                }
+
+                @Override
+                public void onError(String message, boolean retryable) {
+                    if (!isCurrent(thisAttempt)) {
+                        return;
+                    }
+                    detach();
+                    if (retryable) {
+                        retryOrGiveUp(Source.ERROR, message);
+                    } else {
+                        // The database answered and refused; a cached answer must not override that
+                        deliver(Source.ERROR, null, message, null);
+                    }
+                }
+            });
+            // The data source may already have answered from its own local state
+            if (awaitingAnswer) {
+                lookup = started;
+                handler.postDelayed(deadlineTask, ATTEMPT_DEADLINE_MS);
+            }
+        }
+
+        // A late answer from an attempt that already hit its deadline is ignored
+        private boolean isCurrent(int thisAttempt) {
+            return !finished && awaitingAnswer && thisAttempt == attempt;
+        }
+
+        private void onAttemptDeadline() {
+            detach();
+            retryOrGiveUp(Source.TIMED_OUT, null);
+        }
+
+        private void onTotalDeadline() {
+            detach();
+            handler.removeCallbacks(retryTask);
+            fallBack(Source.TIMED_OUT, null);
+        }
+
+        private void onHedgeDeadline() {
+            VerificationCache.Entry entry = cache.get(transactionId);
+            if (entry != null) {
+                deliver(Source.CACHED, entry, null, "database slow to respond");
+            }
+        }
+
+        private void retryOrGiveUp(Source source, String message) {
+            if (attempt < MAX_ATTEMPTS) {
+                handler.postDelayed(retryTask, backoffDelay(attempt));
+            } else {
+                fallBack(source, message);
+            }
+        }
+
+        private void fallBack(Source source, String message) {
+            VerificationCache.Entry entry = cache.get(transactionId);
+            if (entry != null) {
+                deliver(Source.CACHED, entry, null, source == Source.TIMED_OUT
+                        ? "database did not respond"
+                        : "connection error: " + message);
+            } else {
+                deliver(source, null, message, null);
+            }
+        }
+
+        private void deliver(Source source, VerificationCache.Entry entry, String errorMessage,
+                             String fallbackReason) {
+            if (finished) {
+                return;
+            }
+            finish();
+            callback.onResult(new Result(source, transactionId, entry, errorMessage, fallbackReason,
+                    attempt, SystemClock.elapsedRealtime() - startTime));
+        }
+
+        private void detach() {
+            awaitingAnswer = false;
+            handler.removeCallbacks(deadlineTask);
+            if (lookup != null) {
+                lookup.cancel();
+            }
+            lookup = null;
+        }
+
+        private void finish() {
+            finished = true;
+            detach();
+            handler.removeCallbacks(hedgeTask);
+            handler.removeCallbacks(retryTask);
+            handler.removeCallbacks(totalDeadlineTask);
+        }
+    }
+
+    public static class Result {
+        private final Source source;
+        private final boolean found;
+        private final String transactionId;
+        private final String sender;
+        private final String amount;
+        private final long timestamp;
+        private final String errorMessage;
+        private final String fallbackReason;
+        private final int attempts;
+        private final long elapsedMs;
+
+        Result(Source source, String transactionId, VerificationCache.Entry entry, String errorMessage,
+               String fallbackReason, int attempts, long elapsedMs) {
+            this.source = source;
+            this.found = entry != null;
+            this.transactionId = transactionId;
+            this.sender = found ? entry.getSender() : null;
+            this.amount = found ? entry.getAmount() : null;
+            this.timestamp = found ? entry.getTimestamp() : 0;
+            this.errorMessage = errorMessage;
+            this.fallbackReason = fallbackReason;
+            this.attempts = attempts;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getAmount() {
+            return amount;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        /** Why the cache answered instead of the database; only set for {@link Source#CACHED}. */
+        public String getFallbackReason() {
+            return fallbackReason;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.fetanverify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Local copy of transactions that the database has already confirmed for the signed-in user.
+ * Used as the fallback answer when the database is slow or unreachable.
+ */
+public class VerificationCache {
+    private static final String PREFS_PREFIX = "verification_cache_";
+
+    private final SharedPreferences prefs;
+
+    public VerificationCache(Context context, String uid) {
+        prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_PREFIX + uid, Context.MODE_PRIVATE);
+    }
+
+    public Entry get(String transactionId) {
+        String json = prefs.getString(transactionId, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            JSONObject object = new JSONObject(json);
+            return new Entry(transactionId,
+                    object.getString("sender"),
+                    object.optString("amount", "N/A"),
+                    object.getLong("timestamp"));
+        } catch (JSONException e) {
+            prefs.edit().remove(transactionId).apply();
+            return null;
+        }
+    }
+
+    public void put(String transactionId, String sender, String amount, long timestamp) {
+        prefs.edit().putString(transactionId, toJson(sender, amount, timestamp)).apply();
+    }
+
+    public void putAll(List<Entry> entries) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Entry entry : entries) {
+            editor.putString(entry.getTransactionId(),
+                    toJson(entry.getSender(), entry.getAmount(), entry.getTimestamp()));
+        }
+        editor.apply();
+    }
+
+    /**
+     * Drops every entry received before {@code cutoffMillis}, along with any that can no longer
+     * be read. Returns the number of entries removed.
+     */
+    public int compact(long cutoffMillis) {
+        SharedPreferences.Editor editor = prefs.edit();
+        int removed = 0;
+        for (Map.Entry<String, ?> stored : prefs.getAll().entrySet()) {
+            Entry entry = get(stored.getKey());
+            if (entry == null || entry.getTimestamp() < cutoffMillis) {
+                editor.remove(stored.getKey());
+                removed++;
+            }
+        }
+        editor.apply();
+        return removed;
+    }
+
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+
+    public int size() {
+        return prefs.getAll().size();
+    }
+
+    private static String toJson(String sender, String amount, long timestamp) {
+        try {
+            JSONObject object = new JSONObject();
+            object.put("sender", sender);
+            object.put("amount", amount);
+            object.put("timestamp", timestamp);
+            return object.toString();
+        } catch (JSONException e) {
+            // Only strings and longs are written, so this cannot happen
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Entry {
+        private final String transactionId;
+        private final String sender;
+        private final String amount;
+        private final long timestamp;
+
+        Entry(String transactionId, String sender, String amount, long timestamp) {
+            this.transactionId = transactionId;
+            this.sender = sender;
+            this.amount = amount;
+            this.timestamp = timestamp;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getAmount() {
+            return amount;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.fetanverify;
+
+import java.util.List;
+
+/**
+ * Where confirmed transactions come from. The app talks to Firebase through
+ * {@link FirebaseVerificationDataSource}; tests supply their own implementation.
+ */
+public interface VerificationDataSource {
+    /**
+     * Starts looking up a single transaction. The callback runs on the main thread, at most once,
+     * and not at all after the returned lookup has been cancelled.
+     */
+    Lookup lookup(String transactionId, LookupCallback callback);
+
+    /**
+     * Returns up to {@code limit} of the most recent transactions received at or after
+     * {@code sinceMillis}. Blocks, so it must not be called on the main thread.
+     */
+    List<VerificationCache.Entry> fetchRecent(long sinceMillis, int limit) throws Exception;
+
+    interface Lookup {
+        void cancel();
+    }
+
+    interface LookupCallback {
+        /** Called with the matching transaction, or {@code null} if there is none. */
+        void onResult(VerificationCache.Entry entry);
+
+        /** Called when the lookup failed; {@code retryable} is true for connection problems. */
+        void onError(String message, boolean retryable);
+    }
+}
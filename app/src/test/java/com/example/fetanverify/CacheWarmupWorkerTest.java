@@ -0,0 +1,184 @@
+package com.example.fetanverify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Configuration;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkerFactory;
+import androidx.work.WorkerParameters;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import androidx.work.testing.WorkManagerTestInitHelper;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class CacheWarmupWorkerTest {
+    private static final String UID = "test-user";
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private Context context;
+    private FakeVerificationBackend backend;
+    private VerificationCache cache;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        backend = new FakeVerificationBackend(new Handler(Looper.getMainLooper()), 1);
+        cache = new VerificationCache(context, UID);
+    }
+
+    @Test
+    public void doWork_prefetchesMostRecentUpToLimitAndCompactsOld() throws Exception {
+        long now = System.currentTimeMillis();
+        int count = CacheWarmupWorker.PREFETCH_LIMIT * 2;
+        backend.seed(count, now - (count - 1) * MINUTE_MS, MINUTE_MS);
+        cache.put("OLD1", "CBE", "100", now - CacheWarmupWorker.RETENTION_MS - 1);
+
+        ListenableWorker.Result result = buildWorker().doWork();
+
+        assertEquals(ListenableWorker.Result.success(), result);
+        assertEquals(CacheWarmupWorker.PREFETCH_LIMIT, backend.getLastFetchLimit());
+        assertEquals(CacheWarmupWorker.PREFETCH_LIMIT, cache.size());
+        assertNotNull(cache.get(FakeVerificationBackend.transactionId(count - 1)));
+        assertNotNull(cache.get(FakeVerificationBackend.transactionId(count - CacheWarmupWorker.PREFETCH_LIMIT)));
+        assertNull(cache.get(FakeVerificationBackend.transactionId(count - CacheWarmupWorker.PREFETCH_LIMIT - 1)));
+        assertNull(cache.get("OLD1"));
+    }
+
+    @Test
+    public void doWork_prefetchesOnlyWithinWindow() throws Exception {
+        // One record an hour for 300 hours, offset so the window edge falls between two records
+        long now = System.currentTimeMillis();
+        backend.seed(300, now - 299 * HOUR_MS + 30 * MINUTE_MS, HOUR_MS);
+        int windowHours = (int) (CacheWarmupWorker.PREFETCH_WINDOW_MS / HOUR_MS);
+        int oldest = 299 - windowHours;
+
+        buildWorker().doWork();
+
+        assertEquals(300 - oldest, cache.size());
+        assertNotNull(cache.get(FakeVerificationBackend.transactionId(oldest)));
+        assertNull(cache.get(FakeVerificationBackend.transactionId(oldest - 1)));
+    }
+
+    @Test
+    public void doWork_retriesWhenSourceFails() throws Exception {
+        backend.withFetchFailure(new Exception("disconnected"));
+
+        assertEquals(ListenableWorker.Result.retry(), buildWorker().doWork());
+        assertEquals(1, backend.getFetches());
+    }
+
+    @Test
+    public void doWork_failsOnLastRunAttempt() throws Exception {
+        backend.withFetchFailure(new Exception("disconnected"));
+        CacheWarmupWorker worker = TestListenableWorkerBuilder.from(context, CacheWarmupWorker.class)
+                .setInputData(new Data.Builder().putString(CacheWarmupWorker.KEY_UID, UID).build())
+                .setWorkerFactory(new BackendWorkerFactory(uid -> backend))
+                .setRunAttemptCount(CacheWarmupWorker.MAX_RUN_ATTEMPTS - 1)
+                .build();
+
+        assertEquals(ListenableWorker.Result.failure(), worker.doWork());
+        assertEquals(1, backend.getFetches());
+    }
+
+    @Test
+    public void doWork_clearsCacheAndCancelsSyncWhenUserIsGone() throws Exception {
+        initWorkManager();
+        CacheWarmupWorker.schedule(context, UID);
+        cache.put("FT001", "CBE", "250", System.currentTimeMillis());
+        CacheWarmupWorker worker = TestListenableWorkerBuilder.from(context, CacheWarmupWorker.class)
+                .setInputData(new Data.Builder().putString(CacheWarmupWorker.KEY_UID, UID).build())
+                .setWorkerFactory(new BackendWorkerFactory(uid -> null))
+                .build();
+
+        assertEquals(ListenableWorker.Result.success(), worker.doWork());
+        assertEquals(0, cache.size());
+        assertEquals(0, backend.getFetches());
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (String name : new String[] {CacheWarmupWorker.WORK_UNMETERED, CacheWarmupWorker.WORK_CHARGING,
+                CacheWarmupWorker.WORK_STARTUP}) {
+            WorkInfo work = workManager.getWorkInfosForUniqueWork(name).get().get(0);
+            assertEquals(name, WorkInfo.State.CANCELLED, work.getState());
+        }
+    }
+
+    @Test
+    public void doWork_failsWithoutUid() throws Exception {
+        CacheWarmupWorker worker = TestListenableWorkerBuilder.from(context, CacheWarmupWorker.class)
+                .setWorkerFactory(new BackendWorkerFactory(uid -> backend))
+                .build();
+
+        assertEquals(ListenableWorker.Result.failure(), worker.doWork());
+        assertEquals(0, backend.getFetches());
+    }
+
+    @Test
+    public void schedule_runsStartupAndPeriodicWorkWhenConstraintsMet() throws Exception {
+        initWorkManager();
+        backend.seed(1, System.currentTimeMillis(), MINUTE_MS);
+
+        CacheWarmupWorker.schedule(context, UID);
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        TestDriver testDriver = WorkManagerTestInitHelper.getTestDriver(context);
+        assertNotNull(testDriver);
+
+        WorkInfo startup = workManager.getWorkInfosForUniqueWork(CacheWarmupWorker.WORK_STARTUP).get().get(0);
+        testDriver.setAllConstraintsMet(startup.getId());
+        startup = workManager.getWorkInfoById(startup.getId()).get();
+        assertEquals(WorkInfo.State.SUCCEEDED, startup.getState());
+        assertNotNull(cache.get(FakeVerificationBackend.transactionId(0)));
+
+        WorkInfo periodic = workManager.getWorkInfosForUniqueWork(CacheWarmupWorker.WORK_UNMETERED).get().get(0);
+        int fetchesBefore = backend.getFetches();
+        testDriver.setAllConstraintsMet(periodic.getId());
+        testDriver.setPeriodDelayMet(periodic.getId());
+        periodic = workManager.getWorkInfoById(periodic.getId()).get();
+        assertEquals(WorkInfo.State.ENQUEUED, periodic.getState());
+        assertEquals(fetchesBefore + 1, backend.getFetches());
+    }
+
+    private void initWorkManager() {
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .setWorkerFactory(new BackendWorkerFactory(uid -> backend))
+                .build());
+    }
+
+    private CacheWarmupWorker buildWorker() {
+        return TestListenableWorkerBuilder.from(context, CacheWarmupWorker.class)
+                .setInputData(new Data.Builder().putString(CacheWarmupWorker.KEY_UID, UID).build())
+                .setWorkerFactory(new BackendWorkerFactory(uid -> backend))
+                .build();
+    }
+
+    private static class BackendWorkerFactory extends WorkerFactory {
+        private final CacheWarmupWorker.SourceFactory sourceFactory;
+
+        BackendWorkerFactory(CacheWarmupWorker.SourceFactory sourceFactory) {
+            this.sourceFactory = sourceFactory;
+        }
+
+        @Override
+        public ListenableWorker createWorker(@NonNull Context appContext, @NonNull String workerClassName,
+                                             @NonNull WorkerParameters workerParameters) {
+            return new CacheWarmupWorker(appContext, workerParameters, sourceFactory);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.fetanverify;
+
+import android.os.Handler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * In-process stand-in for a user's sms_messages tree. Synthetic records live in parallel arrays
+ * so millions of them fit in a few tens of megabytes. Lookups are answered on the given handler
+ * after an injected delay, so under Robolectric the paused main looper's clock decides when each
+ * answer arrives.
+ */
+class FakeVerificationBackend implements VerificationDataSource {
+    private static final String ID_PREFIX = "FT";
+    private static final String[] SENDERS = {"CBE", "Telebirr", "Awash Bank", "Dashen Bank", "Bank of Abyssinia"};
+
+    private final Handler handler;
+    private final Random random;
+    private long[] timestamps = new long[0];
+    private int[] amounts = new int[0];
+    private byte[] senders = new byte[0];
+
+    private long latencyMs;
+    private long jitterMs;
+    private double errorRate;
+    private boolean errorsRetryable = true;
+    private double disconnectRate;
+    private Exception fetchFailure;
+
+    private int lookups;
+    private int errors;
+    private int disconnects;
+    private int fetches;
+    private int lastFetchLimit;
+
+    FakeVerificationBackend(Handler handler, long seed) {
+        this.handler = handler;
+        this.random = new Random(seed);
+    }
+
+    /** Replaces the contents with {@code count} records, one every {@code spacingMs} from {@code firstTimestamp}. */
+    FakeVerificationBackend seed(int count, long firstTimestamp, long spacingMs) {
+        timestamps = new long[count];
+        amounts = new int[count];
+        senders = new byte[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = firstTimestamp + i * spacingMs;
+            amounts[i] = 10 + random.nextInt(50_000);
+            senders[i] = (byte) random.nextInt(SENDERS.length);
+        }
+        return this;
+    }
+
+    /** Every answer takes {@code latencyMs} plus an exponentially distributed extra with mean {@code jitterMs}. */
+    FakeVerificationBackend withLatency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        return this;
+    }
+
+    FakeVerificationBackend withErrors(double errorRate, boolean retryable) {
+        this.errorRate = errorRate;
+        this.errorsRetryable = retryable;
+        return this;
+    }
+
+    /** A disconnected lookup never answers, like a query on a stalled connection. */
+    FakeVerificationBackend withDisconnectRate(double disconnectRate) {
+        this.disconnectRate = disconnectRate;
+        return this;
+    }
+
+    /** Makes every {@link #fetchRecent} call throw {@code failure}; {@code null} restores normal behaviour. */
+    FakeVerificationBackend withFetchFailure(Exception failure) {
+        this.fetchFailure = failure;
+        return this;
+    }
+
+    static String transactionId(int index) {
+        return String.format(Locale.US, "%s%010d", ID_PREFIX, index);
+    }
+
+    int size() {
+        return timestamps.length;
+    }
+
+    int getLookups() {
+        return lookups;
+    }
+
+    int getErrors() {
+        return errors;
+    }
+
+    int getDisconnects() {
+        return disconnects;
+    }
+
+    int getFetches() {
+        return fetches;
+    }
+
+    int getLastFetchLimit() {
+        return lastFetchLimit;
+    }
+
+    VerificationCache.Entry find(String transactionId) {
+        int index = indexOf(transactionId);
+        return index >= 0 ? entryAt(index) : null;
+    }
+
+    @Override
+    public Lookup lookup(String transactionId, LookupCallback callback) {
+        lookups++;
+        if (random.nextDouble() < disconnectRate) {
+            disconnects++;
+            return () -> { };
+        }
+
+        Runnable answer;
+        if (random.nextDouble() < errorRate) {
+            errors++;
+            answer = () -> callback.onError("Injected backend error", errorsRetryable);
+        } else {
+            answer = () -> callback.onResult(find(transactionId));
+        }
+        handler.postDelayed(answer, nextDelay());
+        return () -> handler.removeCallbacks(answer);
+    }
+
+    @Override
+    public List<VerificationCache.Entry> fetchRecent(long sinceMillis, int limit) throws Exception {
+        fetches++;
+        lastFetchLimit = limit;
+        if (fetchFailure != null) {
+            throw fetchFailure;
+        }
+
+        int from = Arrays.binarySearch(timestamps, sinceMillis);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        from = Math.max(from, timestamps.length - limit);
+
+        List<VerificationCache.Entry> entries = new ArrayList<>();
+        for (int i = from; i < timestamps.length; i++) {
+            entries.add(entryAt(i));
+        }
+        return entries;
+    }
+
+    private long nextDelay() {
+        if (jitterMs <= 0) {
+            return latencyMs;
+        }
+        return latencyMs + (long) (-jitterMs * Math.log(1 - random.nextDouble()));
+    }
+
+    private int indexOf(String transactionId) {
+        if (transactionId == null || !transactionId.startsWith(ID_PREFIX)) {
+            return -1;
+        }
+        try {
+            long index = Long.parseLong(transactionId.substring(ID_PREFIX.length()));
+            return index >= 0 && index < timestamps.length ? (int) index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private VerificationCache.Entry entryAt(int index) {
+        return new VerificationCache.Entry(transactionId(index), SENDERS[senders[index]],
+                String.valueOf(amounts[index]), timestamps[index]);
+    }
+}
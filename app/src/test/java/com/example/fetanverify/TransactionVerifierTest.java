@@ -0,0 +1,196 @@
+package com.example.fetanverify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.test.core.app.ApplicationProvider;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class TransactionVerifierTest {
+    private static final String TRANSACTION_ID = "FT24001ABCDE";
+    private static final VerificationCache.Entry ENTRY =
+            new VerificationCache.Entry(TRANSACTION_ID, "CBE", "500", 1_700_000_000_000L);
+
+    private ScriptedSource source;
+    private VerificationCache cache;
+    private TransactionVerifier verifier;
+    private TransactionVerifier.Result result;
+
+    @Before
+    public void setUp() {
+        source = new ScriptedSource();
+        cache = new VerificationCache(ApplicationProvider.getApplicationContext(), "test-user");
+        verifier = new TransactionVerifier(source, cache, new Handler(Looper.getMainLooper()));
+    }
+
+    @Test
+    public void verify_answersFromRemoteAndFillsCache() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        idleFor(200);
+        source.latest().onResult(ENTRY);
+
+        assertEquals(TransactionVerifier.Source.REMOTE, result.getSource());
+        assertTrue(result.isFound());
+        assertEquals(1, result.getAttempts());
+        assertEquals(200, result.getElapsedMs());
+        assertNotNull(cache.get(TRANSACTION_ID));
+    }
+
+    @Test
+    public void verify_reportsUnknownTransactionAsNotFound() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        source.latest().onResult(null);
+
+        assertEquals(TransactionVerifier.Source.REMOTE, result.getSource());
+        assertFalse(result.isFound());
+    }
+
+    @Test
+    public void verify_acceptsAnswerGivenDuringLookup() {
+        source.immediateAnswer = ENTRY;
+
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+
+        assertEquals(TransactionVerifier.Source.REMOTE, result.getSource());
+        assertEquals(1, source.callbacks.size());
+    }
+
+    @Test
+    public void verify_retriesAfterAttemptDeadline() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        idleFor(TransactionVerifier.ATTEMPT_DEADLINE_MS);
+        assertNull(result);
+        assertEquals(1, source.cancels);
+
+        idleFor(TransactionVerifier.BASE_BACKOFF_MS);
+        assertEquals(2, source.callbacks.size());
+        source.latest().onResult(ENTRY);
+
+        assertEquals(TransactionVerifier.Source.REMOTE, result.getSource());
+        assertEquals(2, result.getAttempts());
+    }
+
+    @Test
+    public void verify_ignoresLateAnswerFromTimedOutAttempt() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        idleFor(TransactionVerifier.ATTEMPT_DEADLINE_MS);
+
+        source.callbacks.get(0).onResult(ENTRY);
+
+        assertNull(result);
+    }
+
+    @Test
+    public void verify_timesOutWhenBackendStalls() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        idleFor(TransactionVerifier.TOTAL_DEADLINE_MS - 1);
+        assertNull(result);
+        idleFor(1);
+
+        // The total deadline cuts the last attempt short rather than waiting out its own deadline
+        assertEquals(TransactionVerifier.Source.TIMED_OUT, result.getSource());
+        assertEquals(TransactionVerifier.TOTAL_DEADLINE_MS, result.getElapsedMs());
+        assertEquals(TransactionVerifier.MAX_ATTEMPTS, result.getAttempts());
+        assertEquals(TransactionVerifier.MAX_ATTEMPTS, source.cancels);
+    }
+
+    @Test
+    public void verify_givesUpAfterRepeatedRetryableErrors() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        for (int attempt = 1; attempt <= TransactionVerifier.MAX_ATTEMPTS; attempt++) {
+            source.latest().onError("disconnected", true);
+            idleFor(TransactionVerifier.BASE_BACKOFF_MS << (attempt - 1));
+        }
+
+        assertEquals(TransactionVerifier.Source.ERROR, result.getSource());
+        assertEquals(TransactionVerifier.MAX_ATTEMPTS, result.getAttempts());
+    }
+
+    @Test
+    public void verify_hedgesToCacheWhenRemoteIsSlow() {
+        cache.put(TRANSACTION_ID, "CBE", "500", 1_700_000_000_000L);
+
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        idleFor(TransactionVerifier.HEDGE_DELAY_MS);
+
+        assertEquals(TransactionVerifier.Source.CACHED, result.getSource());
+        assertEquals(TransactionVerifier.HEDGE_DELAY_MS, result.getElapsedMs());
+        assertEquals("CBE", result.getSender());
+        assertEquals("database slow to respond", result.getFallbackReason());
+        assertEquals(1, source.cancels);
+    }
+
+    @Test
+    public void verify_doesNotRetryPermanentErrors() {
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        source.latest().onError("Permission denied", false);
+
+        assertEquals(TransactionVerifier.Source.ERROR, result.getSource());
+        assertEquals(1, result.getAttempts());
+        assertEquals("Permission denied", result.getErrorMessage());
+    }
+
+    @Test
+    public void verify_ignoresCacheWhenDatabaseRefuses() {
+        cache.put(TRANSACTION_ID, "CBE", "500", 1_700_000_000_000L);
+
+        verifier.verify(TRANSACTION_ID, r -> result = r);
+        source.latest().onError("Permission denied", false);
+
+        assertEquals(TransactionVerifier.Source.ERROR, result.getSource());
+        assertFalse(result.isFound());
+    }
+
+    @Test
+    public void cancel_suppressesCallback() {
+        verifier.verify(TRANSACTION_ID, r -> result = r).cancel();
+        source.latest().onResult(ENTRY);
+        idleFor(TransactionVerifier.worstCaseMs());
+
+        assertNull(result);
+        assertEquals(1, source.callbacks.size());
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    /** Records every lookup and leaves answering to the test. */
+    private static class ScriptedSource implements VerificationDataSource {
+        final List<LookupCallback> callbacks = new ArrayList<>();
+        VerificationCache.Entry immediateAnswer;
+        int cancels;
+
+        @Override
+        public Lookup lookup(String transactionId, LookupCallback callback) {
+            callbacks.add(callback);
+            if (immediateAnswer != null) {
+                callback.onResult(immediateAnswer);
+            }
+            return () -> cancels++;
+        }
+
+        @Override
+        public List<VerificationCache.Entry> fetchRecent(long sinceMillis, int limit) {
+            return Collections.emptyList();
+        }
+
+        LookupCallback latest() {
+            return callbacks.get(callbacks.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.fetanverify;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.test.core.app.ApplicationProvider;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Drives thousands of verifications through {@link TransactionVerifier} against a
+ * {@link FakeVerificationBackend} and reports throughput and latency percentiles per scenario.
+ * The load is closed-loop: a fixed number of simulated clients each start their next verification
+ * from the callback of the previous one, like users waiting on the result card, so a slower backend
+ * lowers throughput instead of piling up requests. Throughput and latency are both measured on
+ * Robolectric's simulated clock, so results are repeatable on any machine. By default it runs a
+ * small smoke-sized load and prints nothing; pass -DloadHarness.records=... (and optionally
+ * -DloadHarness.verifications=... or -DloadHarness.clients=...) to Gradle for a full run with a
+ * printed report.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class VerificationLoadHarnessTest {
+    private static final boolean FULL_RUN = System.getProperty("loadHarness.records") != null;
+    private static final int RECORDS = Integer.getInteger("loadHarness.records", 10_000);
+    private static final int VERIFICATIONS = Integer.getInteger("loadHarness.verifications",
+            FULL_RUN ? 5_000 : 500);
+    private static final int CLIENTS = Integer.getInteger("loadHarness.clients", 8);
+    private static final double UNKNOWN_ID_RATE = 0.1;
+    private static final double WARM_CACHE_RATE = 0.3;
+    private static final long SEED = 2024;
+
+    private Context context;
+    private Handler handler;
+    private FakeVerificationBackend backend;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        handler = new Handler(Looper.getMainLooper());
+        backend = new FakeVerificationBackend(handler, SEED)
+                .seed(RECORDS, System.currentTimeMillis() - RECORDS * 1000L, 1000);
+    }
+
+    @Test
+    public void healthyBackend() {
+        backend.withLatency(80, 40);
+
+        Report report = run("healthy");
+
+        assertEquals(0, report.count(TransactionVerifier.Source.TIMED_OUT));
+        assertEquals(0, report.count(TransactionVerifier.Source.ERROR));
+        assertEquals(0, report.wrongAnswers);
+        assertTrue(report.percentile(0.99) < TransactionVerifier.HEDGE_DELAY_MS);
+        // With every client always busy, throughput is clients divided by mean latency (Little's law)
+        double expected = CLIENTS * 1000.0 / report.mean();
+        assertTrue(Math.abs(report.throughput() - expected) < expected * 0.1);
+    }
+
+    @Test
+    public void degradedBackend() {
+        backend.withLatency(400, 1200)
+                .withErrors(0.05, true)
+                .withDisconnectRate(0.1);
+
+        Report report = run("degraded");
+
+        assertEquals(0, report.wrongAnswers);
+        assertTrue(report.max() <= TransactionVerifier.worstCaseMs());
+    }
+
+    @Test
+    public void backendOutage() {
+        backend.withDisconnectRate(1.0);
+
+        Report report = run("outage");
+
+        // Only transactions already in the cache can be confirmed, and never sooner than the hedge
+        assertEquals(0, report.count(TransactionVerifier.Source.REMOTE));
+        assertEquals(report.warmed, report.count(TransactionVerifier.Source.CACHED));
+        assertTrue(report.percentile(0) >= TransactionVerifier.HEDGE_DELAY_MS);
+        assertNotEquals(0, report.count(TransactionVerifier.Source.TIMED_OUT));
+        assertTrue(report.max() <= TransactionVerifier.worstCaseMs());
+    }
+
+    private Report run(String scenario) {
+        VerificationCache cache = new VerificationCache(context, "load-" + scenario);
+        TransactionVerifier verifier = new TransactionVerifier(backend, cache, handler);
+        Random random = new Random(SEED);
+        Report report = new Report(scenario);
+
+        List<String> transactionIds = new ArrayList<>();
+        List<VerificationCache.Entry> warm = new ArrayList<>();
+        for (int i = 0; i < VERIFICATIONS; i++) {
+            if (random.nextDouble() < UNKNOWN_ID_RATE) {
+                transactionIds.add("UNKNOWN" + i);
+                continue;
+            }
+            String transactionId = FakeVerificationBackend.transactionId(random.nextInt(RECORDS));
+            transactionIds.add(transactionId);
+            if (random.nextDouble() < WARM_CACHE_RATE) {
+                warm.add(backend.find(transactionId));
+            }
+        }
+        cache.putAll(warm);
+        for (String transactionId : transactionIds) {
+            if (cache.get(transactionId) != null) {
+                report.warmed++;
+            }
+        }
+
+        Iterator<String> pending = transactionIds.iterator();
+        report.startMs = SystemClock.elapsedRealtime();
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            verifyNext(verifier, pending, report);
+        }
+        // Each client runs its share one after another, and none can take longer than the worst case
+        long limitMs = report.startMs
+                + (long) ((VERIFICATIONS + CLIENTS - 1) / CLIENTS) * TransactionVerifier.worstCaseMs();
+        while (report.latencies.size() < VERIFICATIONS && SystemClock.elapsedRealtime() < limitMs) {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(TransactionVerifier.worstCaseMs()));
+        }
+        report.harnessNanos = System.nanoTime() - wallStart;
+
+        assertEquals("every verification must finish", VERIFICATIONS, report.latencies.size());
+        if (FULL_RUN) {
+            System.out.println(report.summary(backend));
+        }
+        return report;
+    }
+
+    private void verifyNext(TransactionVerifier verifier, Iterator<String> pending, Report report) {
+        if (!pending.hasNext()) {
+            return;
+        }
+        String transactionId = pending.next();
+        boolean known = backend.find(transactionId) != null;
+        verifier.verify(transactionId, result -> {
+            report.record(result, known);
+            verifyNext(verifier, pending, report);
+        });
+    }
+
+    private static class Report {
+        final String scenario;
+        final List<Long> latencies = new ArrayList<>();
+        final Map<TransactionVerifier.Source, Integer> outcomes = new EnumMap<>(TransactionVerifier.Source.class);
+        int warmed;
+        int wrongAnswers;
+        long startMs;
+        long lastCompletionMs;
+        long harnessNanos;
+        private long[] sorted;
+
+        Report(String scenario) {
+            this.scenario = scenario;
+        }
+
+        void record(TransactionVerifier.Result result, boolean known) {
+            latencies.add(result.getElapsedMs());
+            lastCompletionMs = SystemClock.elapsedRealtime();
+            outcomes.merge(result.getSource(), 1, Integer::sum);
+            // A definite answer that contradicts the backend is a bug, whatever the latency
+            boolean definite = result.getSource() == TransactionVerifier.Source.REMOTE
+                    || result.getSource() == TransactionVerifier.Source.CACHED;
+            if (definite && result.isFound() != known) {
+                wrongAnswers++;
+            }
+        }
+
+        int count(TransactionVerifier.Source source) {
+            Integer count = outcomes.get(source);
+            return count != null ? count : 0;
+        }
+
+        long percentile(double fraction) {
+            if (sorted == null) {
+                sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(sorted);
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        long max() {
+            return percentile(1.0);
+        }
+
+        double mean() {
+            return latencies.stream().mapToLong(Long::longValue).average().orElse(0);
+        }
+
+        /** Completions per second of simulated time, from the first request to the last answer. */
+        double throughput() {
+            return latencies.size() * 1000.0 / Math.max(1, lastCompletionMs - startMs);
+        }
+
+        String summary(FakeVerificationBackend backend) {
+            double simulatedSeconds = (lastCompletionMs - startMs) / 1000.0;
+            return String.format(Locale.US,
+                    "[%s] %d verifications from %d clients over %,d records%n"
+                            + "  throughput: %.1f/s over %.1fs simulated (harness replayed it in %.2fs)%n"
+                            + "  latency ms: p50=%d p90=%d p99=%d p99.9=%d max=%d%n"
+                            + "  outcomes: %s, warmed=%d, wrong=%d%n"
+                            + "  backend: lookups=%d errors=%d disconnects=%d",
+                    scenario, latencies.size(), CLIENTS, backend.size(),
+                    throughput(), simulatedSeconds, harnessNanos / 1e9,
+                    percentile(0.5), percentile(0.9), percentile(0.99), percentile(0.999), max(),
+                    outcomes, warmed, wrongAnswers,
+                    backend.getLookups(), backend.getErrors(), backend.getDisconnects());
+        }
+    }
+}